@@ -0,0 +1,169 @@
+package edu.phystech;
+
+/**
+ * Evaluates many positions at once.
+ * Positions are kept in structure-of-arrays layout (one mask per side and kind),
+ * features are computed with bit operations on whole masks,
+ * so one long operation handles all 64 squares of a position.
+ * Scores are from white's point of view.
+ * Only the scalar implementation is shipped: the project is built for Java 11,
+ * where jdk.incubator.vector does not exist (it appeared in Java 16),
+ * so a Vector API path can not be compiled here.
+ */
+public final class BatchEvaluator {
+    static final int MAN_VALUE = 100;
+    static final int KING_VALUE = 300;
+    static final int MOBILITY_VALUE = 5;
+    static final int ADVANCEMENT_VALUE = 2;
+    private static final int LAST_ROW = 7;
+    private static final int UP_RIGHT = 9; // (x + 1, y + 1) in pieceMask layout
+    private static final int DOWN_RIGHT = 7; // (x + 1, y - 1)
+    private static final long LAST_ROW_MASK = 0x8080808080808080L; // y == 7
+    private static final long FIRST_ROW_MASK = 0x0101010101010101L; // y == 0
+    private static final long NOT_LAST_ROW = ~LAST_ROW_MASK;
+    private static final long NOT_FIRST_ROW = ~FIRST_ROW_MASK;
+    private static final long ROW_BIT_0 = 0xAAAAAAAAAAAAAAAAL; // (y & 1) != 0
+    private static final long ROW_BIT_1 = 0xCCCCCCCCCCCCCCCCL; // (y & 2) != 0
+    private static final long ROW_BIT_2 = 0xF0F0F0F0F0F0F0F0L; // (y & 4) != 0
+
+    private BatchEvaluator() {
+    }
+
+    /**
+     * Positions in structure-of-arrays layout
+     */
+    public static final class Batch {
+        private final long[] whiteMen;
+        private final long[] whiteKings;
+        private final long[] blackMen;
+        private final long[] blackKings;
+        private int size;
+
+        /**
+         * @param capacity
+         * maximal number of positions
+         */
+        public Batch(int capacity) {
+            whiteMen = new long[capacity];
+            whiteKings = new long[capacity];
+            blackMen = new long[capacity];
+            blackKings = new long[capacity];
+        }
+
+        /**
+         * Adds the position on board of a Checkers instance
+         */
+        public void add(Checkers checkers) {
+            add(checkers.pieceMask(true), checkers.pieceMask(false), checkers.kingMask());
+        }
+
+        /**
+         * Adds a position given by masks, same layout as in Checkers.pieceMask
+         */
+        public void add(long whiteMask, long blackMask, long kingMask) {
+            whiteMen[size] = whiteMask & ~kingMask;
+            whiteKings[size] = whiteMask & kingMask;
+            blackMen[size] = blackMask & ~kingMask;
+            blackKings[size] = blackMask & kingMask;
+            ++size;
+        }
+
+        /**
+         * @return number of positions in batch
+         */
+        public int size() {
+            return size;
+        }
+
+        /**
+         * Removes all positions
+         */
+        public void clear() {
+            size = 0;
+        }
+    }
+
+    /**
+     * Computes features of all positions of the batch, white minus black
+     * @param batch
+     * positions
+     * @param material
+     * material balance, men and Kings weighted
+     * @param mobility
+     * number of empty squares next to own pieces
+     * @param advancement
+     * sum of rows passed by men
+     */
+    public static void features(Batch batch, int[] material, int[] mobility, int[] advancement) {
+        for (int i = 0; i < batch.size; ++i) {
+            long whiteMen = batch.whiteMen[i];
+            long whiteKings = batch.whiteKings[i];
+            long blackMen = batch.blackMen[i];
+            long blackKings = batch.blackKings[i];
+            material[i] = material(whiteMen, whiteKings, blackMen, blackKings);
+            mobility[i] = mobility(whiteMen | whiteKings, blackMen | blackKings);
+            advancement[i] = advancement(whiteMen, blackMen);
+        }
+    }
+
+    /**
+     * Evaluates all positions of the batch
+     * @param batch
+     * positions
+     * @param scores
+     * weighted sum of features for every position
+     */
+    public static void evaluate(Batch batch, int[] scores) {
+        for (int i = 0; i < batch.size; ++i) {
+            scores[i] = evaluate(batch.whiteMen[i], batch.whiteKings[i], batch.blackMen[i], batch.blackKings[i]);
+        }
+    }
+
+    /**
+     * Evaluates one position, same score as evaluate(Batch, int[])
+     */
+    public static int evaluate(Checkers checkers) {
+        return evaluate(checkers.pieceMask(true), checkers.pieceMask(false), checkers.kingMask());
+    }
+
+    /**
+     * Evaluates one position given by masks, same layout as in Checkers.pieceMask
+     */
+    static int evaluate(long whiteMask, long blackMask, long kingMask) {
+        return evaluate(whiteMask & ~kingMask, whiteMask & kingMask, blackMask & ~kingMask, blackMask & kingMask);
+    }
+
+    private static int evaluate(long whiteMen, long whiteKings, long blackMen, long blackKings) {
+        return material(whiteMen, whiteKings, blackMen, blackKings)
+                + MOBILITY_VALUE * mobility(whiteMen | whiteKings, blackMen | blackKings)
+                + ADVANCEMENT_VALUE * advancement(whiteMen, blackMen);
+    }
+
+    private static int material(long whiteMen, long whiteKings, long blackMen, long blackKings) {
+        return MAN_VALUE * (Long.bitCount(whiteMen) - Long.bitCount(blackMen))
+                + KING_VALUE * (Long.bitCount(whiteKings) - Long.bitCount(blackKings));
+    }
+
+    private static int mobility(long white, long black) {
+        long empty = ~(white | black);
+        return Long.bitCount(neighbours(white) & empty) - Long.bitCount(neighbours(black) & empty);
+    }
+
+    // white men go up, black men go down
+    private static int advancement(long whiteMen, long blackMen) {
+        return rowSum(whiteMen) - (LAST_ROW * Long.bitCount(blackMen) - rowSum(blackMen));
+    }
+
+    // all diagonal neighbours of the squares, bits leaving the board are dropped
+    private static long neighbours(long mask) {
+        long up = mask & NOT_LAST_ROW;
+        long down = mask & NOT_FIRST_ROW;
+        return up << UP_RIGHT | down << DOWN_RIGHT | up >>> DOWN_RIGHT | down >>> UP_RIGHT;
+    }
+
+    // sum of y over all set squares
+    private static int rowSum(long mask) {
+        return Long.bitCount(mask & ROW_BIT_0) + 2 * Long.bitCount(mask & ROW_BIT_1)
+                + 4 * Long.bitCount(mask & ROW_BIT_2);
+    }
+}
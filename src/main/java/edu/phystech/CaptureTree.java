@@ -0,0 +1,123 @@
+package edu.phystech;
+
+import java.util.Arrays;
+
+/**
+ * Tree of all legal turns of the side to move, built once per turn.
+ * Every path from the root to a leaf is a whole turn (squares of all hops),
+ * so checking a submitted turn is a single walk down the tree.
+ * Crowning during a capture and the ban on jumping beaten pieces twice
+ * are handled by TurnGenerator while the tree is built.
+ * Nodes are stored in arrays that grow when a position has more turns than they hold,
+ * after that building does not allocate.
+ */
+public final class CaptureTree {
+    /**
+     * Virtual root, its children are the squares turns start from
+     */
+    static final int ROOT = 0;
+    private static final int INITIAL_NODES_SHIFT = 12;
+    private static final int INITIAL_NODES = 1 << INITIAL_NODES_SHIFT; // grows if a position has more turns
+
+    private final boolean maximumCapture;
+    private final TurnGenerator generator = new TurnGenerator();
+    private int[] square = new int[INITIAL_NODES];
+    private int[] firstChild = new int[INITIAL_NODES];
+    private int[] nextSibling = new int[INITIAL_NODES];
+    private int[] turn = new int[INITIAL_NODES]; // turn of the generator for leaves, -1 for others
+    private int size;
+
+    /**
+     * @param maximumCapture
+     * true for the rule variant where the turn capturing
+     * the most pieces must be taken
+     */
+    public CaptureTree(boolean maximumCapture) {
+        this.maximumCapture = maximumCapture;
+    }
+
+    /**
+     * Builds the tree for a position
+     * @param whiteMask
+     * white checkers, same layout as in Checkers.pieceMask
+     * @param blackMask
+     * black checkers
+     * @param kingMask
+     * Kings of both colors
+     * @param isWhiteTurn
+     * which turn it is, black or white
+     * @return number of legal turns
+     */
+    int build(long whiteMask, long blackMask, long kingMask, boolean isWhiteTurn) {
+        int count = generator.generate(whiteMask, blackMask, kingMask, isWhiteTurn);
+        int mostCaptured = 0;
+        if (maximumCapture) {
+            for (int t = 0; t < count; ++t) {
+                mostCaptured = Math.max(mostCaptured, Long.bitCount(generator.captured(t)));
+            }
+        }
+        size = 1;
+        firstChild[ROOT] = -1;
+        turn[ROOT] = -1;
+        int legal = 0;
+        for (int t = 0; t < count; ++t) {
+            if (Long.bitCount(generator.captured(t)) < mostCaptured) {
+                continue;
+            }
+            int node = ROOT;
+            for (int k = 0; k < generator.pathLength(t); ++k) {
+                node = addChild(node, generator.pathSquare(t, k));
+            }
+            if (turn[node] == -1) {
+                turn[node] = t;
+                ++legal;
+            }
+        }
+        return legal;
+    }
+
+    /**
+     * @return child of the node on the square, -1 if there is no such child
+     */
+    int child(int node, int childSquare) {
+        for (int c = firstChild[node]; c != -1; c = nextSibling[c]) {
+            if (square[c] == childSquare) {
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if a whole legal turn ends in the node
+     */
+    boolean isLeaf(int node) {
+        return node != ROOT && turn[node] != -1;
+    }
+
+    /**
+     * @return true if the turn ending in the leaf is made by a King
+     */
+    boolean startsAsKing(int leaf) {
+        return generator.startsAsKing(turn[leaf]);
+    }
+
+    private int addChild(int node, int childSquare) {
+        int existing = child(node, childSquare);
+        if (existing != -1) {
+            return existing;
+        }
+        if (size == square.length) {
+            square = Arrays.copyOf(square, size * 2);
+            firstChild = Arrays.copyOf(firstChild, size * 2);
+            nextSibling = Arrays.copyOf(nextSibling, size * 2);
+            turn = Arrays.copyOf(turn, size * 2);
+        }
+        square[size] = childSquare;
+        firstChild[size] = -1;
+        turn[size] = -1;
+        nextSibling[size] = firstChild[node];
+        firstChild[node] = size;
+        return size++;
+    }
+}
@@ -1,5 +1,6 @@
 package edu.phystech;
 
+import java.nio.ByteBuffer;
 import java.util.HashSet;
 import java.util.Scanner;
 import java.util.Objects;
@@ -34,6 +35,15 @@ class GeneralErrorException extends Exception {
  */
 public final class Checkers {
 
+    /**
+     * Size of the state written by writeState:
+     * three piece masks, parser state, turn counter and flags
+     */
+    static final int STATE_BYTES = 3 * Long.BYTES + 2 * Integer.BYTES + 1;
+    // starting position, same layout as in pieceMask
+    private static final long DEFAULT_WHITE_MASK = 0x0205020502050205L;
+    private static final long DEFAULT_BLACK_MASK = 0xA040A040A040A040L;
+
     ParserAutomat parser;
     private final int boardSize = 8; // board can be extended
     private final String letters = "abcdefgh"; // letters on board
@@ -42,6 +52,11 @@ public final class Checkers {
     private final char empty = '_';
     private final char beaten = 'r'; // for beaten pieces
     private final Square[][] board; // stores the checkerboard
+    private boolean isWhiteToMove = true; // side that has the next turn
+    private int turnCount = 0; // number of turns done
+    private MoveEventRing moveEvents; // receives done turns, can be null
+    private final int[] turnHops = new int[MoveEventRing.MAX_HOPS]; // squares of the current turn
+    private int turnHopCount; // squares of the current turn, stored or not
     // Если сделать ArrayList<ArrayList<Square>>,
     // то будет некрасивое обращение и присвоение элементов :(
     // Напр.: board.get(i).set(j, new Square(empty));
@@ -120,6 +135,7 @@ public final class Checkers {
                     throw new GeneralErrorException();
                 }
                 this.line = line;
+                currentLineIndex = 0;
                 return;
             }
             String usualMove = "[a-h|A-H][1-8]-[a-h|A-H][1-8]";
@@ -137,6 +153,15 @@ public final class Checkers {
             isWhiteNow = !isWhiteNow;
         }
 
+        /**
+         * used when placement is not parsed (default placement),
+         * next lines are moves
+         */
+        void skipPlacement() {
+            state = 2;
+            isWhiteNow = true;
+        }
+
         /**
         * returns next checker in line
         */
@@ -224,23 +249,39 @@ public final class Checkers {
      * Starting placement of checkers
      */
     public void defaultPlacement() {
-        for (int i = 0; i < boardSize; ++i) {
-            for (int j = 0; j < boardSize; ++j) {
-                board[i][j] = new Square(empty);
-            }
-        }
+        placeMasks(DEFAULT_WHITE_MASK, DEFAULT_BLACK_MASK, 0);
+        parser.skipPlacement();
+    }
 
-        for (int i = 0; i < boardSize; ++i) {
-            if (i % 2 == 0) {
-                board[i][0] = new Square(white);
-                board[i][2] = new Square(white);
-                board[i][6] = new Square(black);
-            } else {
-                board[i][1] = new Square(white);
-                board[i][5] = new Square(black);
-                board[i][7] = new Square(black);
-            }
-        }
+    /**
+     * Restores the starting position and a new game state
+     * (white to move, no turns done, parser waits for moves, no ring buffer).
+     * Nothing is allocated, so instances can be reused for many games.
+     */
+    public void reset() {
+        reset(DEFAULT_WHITE_MASK, DEFAULT_BLACK_MASK, 0, true);
+    }
+
+    /**
+     * Restores a given position and a new game state, nothing is allocated
+     * @param whiteMask
+     * squares with white checkers, bit (x * 8 + y) for square (x, y)
+     * @param blackMask
+     * squares with black checkers
+     * @param kingMask
+     * squares with Kings of both colors
+     * @param isWhiteTurn
+     * which side has the next turn
+     */
+    public void reset(long whiteMask, long blackMask, long kingMask, boolean isWhiteTurn) {
+        placeMasks(whiteMask, blackMask, kingMask);
+        parser.skipPlacement();
+        parser.line = null;
+        parser.currentLineIndex = 0;
+        isWhiteToMove = isWhiteTurn;
+        turnCount = 0;
+        turnHopCount = 0;
+        moveEvents = null;
     }
 
     /**
@@ -605,7 +646,8 @@ public final class Checkers {
         for (int i = 0; i < boardSize; i++) {
             for (int j = 0; j < boardSize; j++) {
                 if (board[i][j].color == beaten) {
-                    board[i][j] = new Square(empty);
+                    board[i][j].color = empty;
+                    board[i][j].isKing = false;
                 }
             }
         }
@@ -634,10 +676,14 @@ public final class Checkers {
         int yto;
         boolean isKing = checker.square.isKing;
         boolean hasBecomeKingThisTurn = false;
+        boolean wasKing = board[xfrom][yfrom].isKing;
+        turnHopCount = 0;
+        recordHop(xfrom, yfrom);
         while (!parser.outOfCheckers()) {
             checker = parser.nextChecker();
             xto = checker.x;
             yto = checker.y;
+            recordHop(xto, yto);
 
             hasBecomeKingThisTurn = isWhiteTurn && yfrom == (boardSize - 1)
                     || !isWhiteTurn && yfrom == 0 || hasBecomeKingThisTurn;
@@ -648,9 +694,226 @@ public final class Checkers {
             yfrom = yto;
             isKing = checker.square.isKing;
         }
+        finishTurn(isWhiteTurn, wasKing, xfrom, yfrom);
+    } // executes a move
+
+    /**
+     * Sets ring buffer that receives every done turn
+     * @param moveEvents
+     * ring buffer, null to stop publishing
+     */
+    public void setMoveEvents(MoveEventRing moveEvents) {
+        this.moveEvents = moveEvents;
+    }
+
+    // squares past MAX_HOPS are counted but not stored, the event is marked truncated
+    private void recordHop(int x, int y) {
+        if (turnHopCount < turnHops.length) {
+            turnHops[turnHopCount] = x * boardSize + y;
+        }
+        ++turnHopCount;
+    }
+
+    private void finishTurn(boolean isWhiteTurn, boolean wasKing, int xlast, int ylast) {
+        long captured = moveEvents != null ? beatenMask() : 0;
         takeOffBeatenPieces();
         parser.nextState();
-    } // executes a move
+        isWhiteToMove = !isWhiteTurn;
+        ++turnCount;
+        if (moveEvents != null) {
+            boolean crowned = !wasKing && board[xlast][ylast].isKing;
+            moveEvents.publish(isWhiteTurn, turnHops, turnHopCount, captured, crowned, turnCount);
+        }
+    }
+
+    private long beatenMask() {
+        long mask = 0;
+        for (int i = 0; i < boardSize; ++i) {
+            for (int j = 0; j < boardSize; ++j) {
+                if (board[i][j].color == beaten) {
+                    mask |= 1L << (i * boardSize + j);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Parses and does a whole turn
+     * @param turn
+     * turn in format "a1-b2" or "a1:c3:e5", for Kings use Upper letters
+     * @param isWhiteTurn
+     * which turn it is, black or white
+     * @throws BusyCellException
+     * if you try to step on busy square
+     * @throws WhiteCellException
+     * if you try to step on "white" square
+     * @throws InvalidMoveException
+     * if you have to beat enemy, and you do not do it
+     * @throws GeneralErrorException
+     * other exceptions
+     */
+    public void doTurn(String turn, boolean isWhiteTurn) throws BusyCellException,
+            WhiteCellException, GeneralErrorException, InvalidMoveException {
+        parser.parse(turn);
+        doTurn(isWhiteTurn);
+    }
+
+    /**
+     * Does a whole turn checked in one walk down the tree of legal turns
+     * instead of checking every hop as doTurn does.
+     * Unlike doTurn, a capture has to be continued till the end.
+     * @param turn
+     * turn in format "a1-b2" or "a1:c3:e5", for Kings use Upper letters
+     * @param isWhiteTurn
+     * which turn it is, black or white
+     * @param tree
+     * tree of legal turns, is rebuilt for this turn and can be reused
+     * @throws InvalidMoveException
+     * if the turn is not one of the legal turns
+     * @throws GeneralErrorException
+     * if the turn is written wrong
+     */
+    public void doTurn(String turn, boolean isWhiteTurn, CaptureTree tree) throws GeneralErrorException,
+            InvalidMoveException {
+        parser.parse(turn);
+        tree.build(pieceMask(true), pieceMask(false), kingMask(), isWhiteTurn);
+        int node = CaptureTree.ROOT;
+        boolean isKing = false;
+        while (!parser.outOfCheckers()) {
+            Checker checker = parser.nextChecker();
+            if (node == CaptureTree.ROOT) {
+                isKing = checker.square.isKing;
+            }
+            node = tree.child(node, checker.x * boardSize + checker.y);
+            if (node == -1) {
+                throw new InvalidMoveException();
+            }
+        }
+        if (!tree.isLeaf(node)) {
+            throw new InvalidMoveException();
+        }
+        // check that King has Upper Notation
+        if (isKing != tree.startsAsKing(node)) {
+            throw new GeneralErrorException();
+        }
+
+        parser.currentLineIndex = 0;
+        Checker from = parser.nextChecker();
+        turnHopCount = 0;
+        recordHop(from.x, from.y);
+        while (!parser.outOfCheckers()) {
+            Checker to = parser.nextChecker();
+            recordHop(to.x, to.y);
+            doMove(from.x, from.y, to.x, to.y, isWhiteTurn);
+            from = to;
+        }
+        finishTurn(isWhiteTurn, isKing, from.x, from.y);
+    }
+
+    /**
+     * @return true if white has the next turn
+     */
+    boolean isWhiteToMove() {
+        return isWhiteToMove;
+    }
+
+    /**
+     * @return number of turns done since the start of the game
+     */
+    int getTurnCount() {
+        return turnCount;
+    }
+
+    /**
+     * Mask of checkers of a particular color,
+     * bit (x * 8 + y) is set if square (x, y) is occupied
+     * @param isWhite
+     * which checkers are taken, black or white
+     */
+    long pieceMask(boolean isWhite) {
+        char player = isWhite ? white : black;
+        long mask = 0;
+        for (int i = 0; i < boardSize; ++i) {
+            for (int j = 0; j < boardSize; ++j) {
+                if (board[i][j].color == player) {
+                    mask |= 1L << (i * boardSize + j);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Mask of Kings of both colors, same layout as in pieceMask
+     */
+    long kingMask() {
+        long mask = 0;
+        for (int i = 0; i < boardSize; ++i) {
+            for (int j = 0; j < boardSize; ++j) {
+                if (board[i][j].isKing && board[i][j].color != empty) {
+                    mask |= 1L << (i * boardSize + j);
+                }
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Places checkers from masks (same layout as in pieceMask),
+     * squares are changed in place, nothing is allocated
+     * @param whiteMask
+     * squares with white checkers
+     * @param blackMask
+     * squares with black checkers
+     * @param kingMask
+     * squares with Kings of both colors
+     */
+    void placeMasks(long whiteMask, long blackMask, long kingMask) {
+        for (int i = 0; i < boardSize; ++i) {
+            for (int j = 0; j < boardSize; ++j) {
+                long bit = 1L << (i * boardSize + j);
+                Square square = board[i][j];
+                square.color = (whiteMask & bit) != 0 ? white : (blackMask & bit) != 0 ? black : empty;
+                square.isKing = square.color != empty && (kingMask & bit) != 0;
+            }
+        }
+    }
+
+    /**
+     * Writes position, side to move, turn counter and parser state
+     * (STATE_BYTES bytes) at the current buffer position.
+     * Should be called between turns.
+     * @param buffer
+     * buffer to write to
+     */
+    void writeState(ByteBuffer buffer) {
+        buffer.putLong(pieceMask(true));
+        buffer.putLong(pieceMask(false));
+        buffer.putLong(kingMask());
+        buffer.putInt(parser.state);
+        buffer.putInt(turnCount);
+        buffer.put((byte) ((isWhiteToMove ? 1 : 0) | (parser.isWhiteNow ? 2 : 0)));
+    }
+
+    /**
+     * Restores the state written by writeState
+     * @param buffer
+     * buffer to read from
+     */
+    void readState(ByteBuffer buffer) {
+        long whiteMask = buffer.getLong();
+        long blackMask = buffer.getLong();
+        long kingMask = buffer.getLong();
+        placeMasks(whiteMask, blackMask, kingMask);
+        parser.state = buffer.getInt();
+        parser.line = null;
+        parser.currentLineIndex = 0;
+        turnCount = buffer.getInt();
+        byte flags = buffer.get();
+        isWhiteToMove = (flags & 1) != 0;
+        parser.isWhiteNow = (flags & 2) != 0;
+    }
 
 
     public static void main(String[] args) {
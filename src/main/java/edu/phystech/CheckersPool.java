@@ -0,0 +1,48 @@
+package edu.phystech;
+
+/**
+ * Per-thread pool of Checkers instances for batch processing of short games.
+ * Every worker thread gets its own instance, which is reset instead of
+ * creating a new one for every game.
+ * The returned instance is valid until the next acquire on the same thread.
+ */
+public final class CheckersPool {
+    private static final ThreadLocal<Checkers> POOL = ThreadLocal.withInitial(Checkers::new);
+
+    private CheckersPool() {
+    }
+
+    /**
+     * @return instance of the current thread in the starting position
+     */
+    public static Checkers acquire() {
+        Checkers checkers = POOL.get();
+        checkers.reset();
+        return checkers;
+    }
+
+    /**
+     * @return instance of the current thread as it is, without reset,
+     * for callers that overwrite the whole state
+     */
+    static Checkers get() {
+        return POOL.get();
+    }
+
+    /**
+     * @param whiteMask
+     * squares with white checkers, bit (x * 8 + y) for square (x, y)
+     * @param blackMask
+     * squares with black checkers
+     * @param kingMask
+     * squares with Kings of both colors
+     * @param isWhiteTurn
+     * which side has the next turn
+     * @return instance of the current thread in the given position
+     */
+    public static Checkers acquire(long whiteMask, long blackMask, long kingMask, boolean isWhiteTurn) {
+        Checkers checkers = POOL.get();
+        checkers.reset(whiteMask, blackMask, kingMask, isWhiteTurn);
+        return checkers;
+    }
+}
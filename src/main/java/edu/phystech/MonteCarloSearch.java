@@ -0,0 +1,305 @@
+package edu.phystech;
+
+/**
+ * Monte Carlo Tree Search player for Checkers positions.
+ * Uses UCT selection and root parallelism: every thread grows its own tree
+ * from the same root, visit counts of root turns are summed at the end.
+ * Trees are kept between moves (see advance).
+ */
+public final class MonteCarloSearch {
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int MAX_PLIES = 200; // playout is adjudicated after this many plies
+    private static final int KING_VALUE = 3; // for adjudication by material
+    private static final long NANOS_IN_MILLI = 1_000_000L;
+    private static final double NANOS_IN_SECOND = 1e9;
+    private static final double DRAW_SCORE = 0.5;
+    private static final int XORSHIFT_A = 12;
+    private static final int XORSHIFT_B = 25;
+    private static final int XORSHIFT_C = 27;
+    private static final int HIGH_BITS_SHIFT = 32; // upper half of a long
+    private static final long XORSHIFT_MULTIPLIER = 0x2545F4914F6CDD1DL;
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    private final Tree[] trees;
+
+    /**
+     * Result of a search
+     */
+    public static final class Result {
+        private final String turn;
+        private final long playouts;
+        private final long nanos;
+
+        Result(String turn, long playouts, long nanos) {
+            this.turn = turn;
+            this.playouts = playouts;
+            this.nanos = nanos;
+        }
+
+        /**
+         * @return best turn in the notation of Checkers.doTurn,
+         * null if there are no legal turns
+         */
+        public String getTurn() {
+            return turn;
+        }
+
+        /**
+         * @return number of random playouts done by all threads,
+         * iterations that ended in a terminal node are not counted
+         */
+        public long getPlayouts() {
+            return playouts;
+        }
+
+        /**
+         * @return playouts per second for all threads together
+         */
+        public double getPlayoutsPerSecond() {
+            return nanos == 0 ? 0 : playouts * NANOS_IN_SECOND / nanos;
+        }
+    }
+
+    /**
+     * Node of a search tree, stores the position after the turn leading to it
+     */
+    private static final class Node {
+        private final long white;
+        private final long black;
+        private final long kings;
+        private final boolean isWhiteToMove;
+        private final String turn; // turn leading to this node
+        private Node[] children; // null until expanded
+        private int visits;
+        private double wins; // for the side that made the turn leading to this node
+
+        Node(long white, long black, long kings, boolean isWhiteToMove, String turn) {
+            this.white = white;
+            this.black = black;
+            this.kings = kings;
+            this.isWhiteToMove = isWhiteToMove;
+            this.turn = turn;
+        }
+    }
+
+    /**
+     * Tree and playout buffers of one thread
+     */
+    private static final class Tree implements Runnable {
+        private final TurnGenerator generator = new TurnGenerator();
+        private final Node[] selected = new Node[MAX_PLIES * 2];
+        private final long[] masks = new long[3]; // white, black, kings of the playout
+        private long random;
+        private Node root;
+        private long deadline;
+        private long playouts;
+
+        Tree(Node root, long seed) {
+            this.root = root;
+            this.random = seed == 0 ? 1 : seed;
+        }
+
+        @Override
+        public void run() {
+            playouts = 0;
+            do {
+                if (iterate()) {
+                    ++playouts;
+                }
+            } while (System.nanoTime() < deadline);
+        }
+
+        // returns true if a random playout was done, false for a terminal node
+        private boolean iterate() {
+            Node node = root;
+            int depth = 0;
+            selected[depth++] = node;
+            while (node.children != null && node.children.length > 0 && depth < selected.length - 1) {
+                node = selectChild(node);
+                selected[depth++] = node;
+            }
+            double whiteScore;
+            boolean played = false;
+            if (node.children == null) {
+                expand(node);
+            }
+            if (node.children.length == 0) {
+                whiteScore = node.isWhiteToMove ? 0 : 1;
+            } else {
+                node = node.children[nextInt(node.children.length)];
+                selected[depth++] = node;
+                whiteScore = playout(node.white, node.black, node.kings, node.isWhiteToMove);
+                played = true;
+            }
+            for (int i = 0; i < depth; ++i) {
+                Node visited = selected[i];
+                ++visited.visits;
+                visited.wins += visited.isWhiteToMove ? 1 - whiteScore : whiteScore;
+            }
+            return played;
+        }
+
+        private Node selectChild(Node node) {
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            double logVisits = Math.log(node.visits);
+            for (Node child : node.children) {
+                if (child.visits == 0) {
+                    return child;
+                }
+                double value = child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+
+        private void expand(Node node) {
+            int count = generator.generate(node.white, node.black, node.kings, node.isWhiteToMove);
+            Node[] children = new Node[count];
+            for (int i = 0; i < count; ++i) {
+                long[] child = {node.white, node.black, node.kings};
+                apply(generator, i, child, node.isWhiteToMove);
+                children[i] = new Node(child[0], child[1], child[2], !node.isWhiteToMove, generator.notation(i));
+            }
+            node.children = children;
+        }
+
+        /**
+         * Random game till the end, does not allocate
+         * @return 1 if white wins, 0 if black wins, 0.5 for a draw
+         */
+        private double playout(long white, long black, long kings, boolean isWhiteTurn) {
+            masks[0] = white;
+            masks[1] = black;
+            masks[2] = kings;
+            boolean isWhite = isWhiteTurn;
+            for (int ply = 0; ply < MAX_PLIES; ++ply) {
+                int count = generator.generate(masks[0], masks[1], masks[2], isWhite);
+                if (count == 0) {
+                    return isWhite ? 0 : 1;
+                }
+                apply(generator, nextInt(count), masks, isWhite);
+                isWhite = !isWhite;
+            }
+            int material = Long.bitCount(masks[0]) - Long.bitCount(masks[1])
+                    + (KING_VALUE - 1) * (Long.bitCount(masks[0] & masks[2]) - Long.bitCount(masks[1] & masks[2]));
+            return material > 0 ? 1 : material < 0 ? 0 : DRAW_SCORE;
+        }
+
+        private int nextInt(int bound) {
+            // xorshift64*
+            random ^= random >>> XORSHIFT_A;
+            random ^= random << XORSHIFT_B;
+            random ^= random >>> XORSHIFT_C;
+            long value = (random * XORSHIFT_MULTIPLIER) >>> HIGH_BITS_SHIFT;
+            return (int) (value * bound >>> HIGH_BITS_SHIFT);
+        }
+    }
+
+    /**
+     * @param checkers
+     * position to search, side to move is taken from it
+     * @param threads
+     * number of search threads
+     */
+    public MonteCarloSearch(Checkers checkers, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads: " + threads);
+        }
+        trees = new Tree[threads];
+        for (int i = 0; i < threads; ++i) {
+            trees[i] = new Tree(rootOf(checkers), System.nanoTime() ^ (i + 1) * SEED_STEP);
+        }
+    }
+
+    /**
+     * Searches the current position
+     * @param millis
+     * time to search
+     * @return best turn and playout statistics
+     * @throws InterruptedException
+     * if the calling thread is interrupted while waiting for search threads
+     */
+    public Result search(long millis) throws InterruptedException {
+        long start = System.nanoTime();
+        Thread[] threads = new Thread[trees.length];
+        for (int i = 0; i < trees.length; ++i) {
+            trees[i].deadline = start + millis * NANOS_IN_MILLI;
+            threads[i] = new Thread(trees[i], "mcts-" + i);
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        long nanos = System.nanoTime() - start;
+
+        long playouts = 0;
+        long[] visits = new long[trees[0].root.children.length];
+        for (Tree tree : trees) {
+            playouts += tree.playouts;
+            // all trees generate root turns in the same order
+            for (int i = 0; i < visits.length; ++i) {
+                visits[i] += tree.root.children[i].visits;
+            }
+        }
+        String best = null;
+        long bestVisits = -1;
+        for (int i = 0; i < visits.length; ++i) {
+            if (visits[i] > bestVisits) {
+                bestVisits = visits[i];
+                best = trees[0].root.children[i].turn;
+            }
+        }
+        return new Result(best, playouts, nanos);
+    }
+
+    /**
+     * Moves the roots to the new position, keeping subtrees that were already searched
+     * @param checkers
+     * position after the turn was done
+     */
+    public void advance(Checkers checkers) {
+        long white = checkers.pieceMask(true);
+        long black = checkers.pieceMask(false);
+        long kings = checkers.kingMask();
+        boolean isWhiteToMove = checkers.isWhiteToMove();
+        for (Tree tree : trees) {
+            Node next = null;
+            if (tree.root.children != null) {
+                for (Node child : tree.root.children) {
+                    if (child.white == white && child.black == black && child.kings == kings
+                            && child.isWhiteToMove == isWhiteToMove) {
+                        next = child;
+                        break;
+                    }
+                }
+            }
+            tree.root = next != null ? next : new Node(white, black, kings, isWhiteToMove, null);
+        }
+    }
+
+    /**
+     * Applies a generated turn to masks {white, black, kings}
+     */
+    static void apply(TurnGenerator generator, int turn, long[] masks, boolean isWhiteTurn) {
+        long from = 1L << generator.from(turn);
+        long to = 1L << generator.to(turn);
+        long captured = generator.captured(turn);
+        boolean becomesKing = (masks[2] & from) != 0 || generator.crowned(turn);
+        int own = isWhiteTurn ? 0 : 1;
+        masks[own] = masks[own] & ~from | to;
+        masks[1 - own] &= ~captured;
+        masks[2] &= ~(captured | from);
+        if (becomesKing) {
+            masks[2] |= to;
+        }
+    }
+
+    private static Node rootOf(Checkers checkers) {
+        return new Node(checkers.pieceMask(true), checkers.pieceMask(false), checkers.kingMask(),
+                checkers.isWhiteToMove(), null);
+    }
+}
@@ -0,0 +1,209 @@
+package edu.phystech;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Preallocated single-writer ring buffer of executed turns.
+ * The game thread publishes every turn without allocation and never waits:
+ * when the ring is full the oldest events are overwritten.
+ * Every spectator reads with its own Cursor, a slow one skips the events
+ * it has lost instead of blocking the writer.
+ */
+public final class MoveEventRing {
+    /**
+     * Maximal number of squares stored for a turn
+     */
+    static final int MAX_HOPS = TurnGenerator.MAX_PATH;
+
+    private final int mask;
+    private final int[] hops;
+    private final int[] hopCount;
+    private final long[] captured;
+    private final boolean[] crowned;
+    private final boolean[] truncated;
+    private final boolean[] white;
+    private final int[] turnNumber;
+    // sequence of the event stored in a slot, -1 while the slot is written
+    private final AtomicLongArray stamps;
+    private final AtomicLong published = new AtomicLong(-1); // last published sequence
+
+    /**
+     * Event copied out of the ring, filled by Cursor.poll,
+     * can be reused for all events of a cursor
+     */
+    public static final class MoveEvent {
+        private final int[] hops = new int[MAX_HOPS];
+        private int hopCount;
+        private long captured;
+        private boolean crowned;
+        private boolean truncated;
+        private boolean white;
+        private int turnNumber;
+
+        /**
+         * @return number of stored squares of the turn, start square included
+         */
+        public int getHopCount() {
+            return hopCount;
+        }
+
+        /**
+         * @return k-th square of the turn, bit index (x * 8 + y) for square (x, y)
+         */
+        public int getHop(int k) {
+            return hops[k];
+        }
+
+        /**
+         * @return mask of captured squares, same layout as hops
+         */
+        public long getCaptured() {
+            return captured;
+        }
+
+        /**
+         * @return true if a man became King during the turn
+         */
+        public boolean isCrowned() {
+            return crowned;
+        }
+
+        /**
+         * @return true if the turn had more than MAX_HOPS squares and only the first ones are stored
+         */
+        public boolean isTruncated() {
+            return truncated;
+        }
+
+        /**
+         * @return true if the turn was made by white
+         */
+        public boolean isWhite() {
+            return white;
+        }
+
+        /**
+         * @return number of the turn in the game, counted from 1
+         */
+        public int getTurnNumber() {
+            return turnNumber;
+        }
+    }
+
+    /**
+     * Reading position of one consumer
+     */
+    public final class Cursor {
+        private long next;
+        private long missed = 0;
+
+        private Cursor(long next) {
+            this.next = next;
+        }
+
+        /**
+         * Copies the next event
+         * @param event
+         * holder to fill
+         * @return false if there are no new events
+         */
+        public boolean poll(MoveEvent event) {
+            while (true) {
+                long last = published.get();
+                if (next > last) {
+                    return false;
+                }
+                if (next < last - mask) { // overwritten, go to the oldest stored event
+                    missed += last - mask - next;
+                    next = last - mask;
+                }
+                int slot = (int) next & mask;
+                if (stamps.get(slot) == next) {
+                    event.hopCount = hopCount[slot];
+                    System.arraycopy(hops, slot * MAX_HOPS, event.hops, 0, event.hopCount);
+                    event.captured = captured[slot];
+                    event.crowned = crowned[slot];
+                    event.truncated = truncated[slot];
+                    event.white = white[slot];
+                    event.turnNumber = turnNumber[slot];
+                    VarHandle.acquireFence();
+                    if (stamps.get(slot) == next) {
+                        ++next;
+                        return true;
+                    }
+                }
+                // writer has lapped us while reading, try again
+            }
+        }
+
+        /**
+         * @return number of events lost because the cursor was too slow
+         */
+        public long getMissed() {
+            return missed;
+        }
+    }
+
+    /**
+     * @param capacity
+     * number of stored events, power of two
+     */
+    public MoveEventRing(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity should be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        hops = new int[capacity * MAX_HOPS];
+        hopCount = new int[capacity];
+        captured = new long[capacity];
+        crowned = new boolean[capacity];
+        truncated = new boolean[capacity];
+        white = new boolean[capacity];
+        turnNumber = new int[capacity];
+        stamps = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; ++i) {
+            stamps.set(i, -1);
+        }
+    }
+
+    /**
+     * @return cursor that reads events published from now on
+     */
+    public Cursor newCursor() {
+        return new Cursor(published.get() + 1);
+    }
+
+    /**
+     * Publishes a turn, should be called by one thread only
+     * @param isWhite
+     * which side made the turn
+     * @param turnHops
+     * squares of the turn, only first min(count, MAX_HOPS) are used
+     * @param count
+     * number of squares, the event is marked truncated if it is more than MAX_HOPS
+     * @param capturedMask
+     * captured squares
+     * @param isCrowned
+     * if a man became King
+     * @param turn
+     * number of the turn in the game
+     */
+    void publish(boolean isWhite, int[] turnHops, int count, long capturedMask, boolean isCrowned, int turn) {
+        long sequence = published.get() + 1;
+        int slot = (int) sequence & mask;
+        stamps.set(slot, -1);
+        VarHandle.releaseFence();
+        int stored = Math.min(count, MAX_HOPS);
+        System.arraycopy(turnHops, 0, hops, slot * MAX_HOPS, stored);
+        hopCount[slot] = stored;
+        captured[slot] = capturedMask;
+        crowned[slot] = isCrowned;
+        truncated[slot] = count > MAX_HOPS;
+        white[slot] = isWhite;
+        turnNumber[slot] = turn;
+        stamps.set(slot, sequence);
+        published.set(sequence);
+    }
+}
@@ -0,0 +1,143 @@
+package edu.phystech;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+
+/**
+ * Store of many mostly idle games outside of the heap.
+ * Every game takes a fixed-width slot (Checkers.STATE_BYTES) in one direct buffer:
+ * position, side to move, turn counter and parser state.
+ * A game is hydrated into the pooled Checkers of the current thread
+ * only while a turn is processed and is written back afterwards.
+ * Different games can be processed by different threads at the same time,
+ * one game should be processed by one thread at a time.
+ * A released slot is given to the next created game, so it should not be used after release.
+ */
+public final class OffHeapSessionStore {
+    private final ByteBuffer arena;
+    private final int capacity;
+    private final ThreadLocal<ByteBuffer> views; // every thread moves its own position
+    private final int[] freeSlots;
+    private final BitSet inUse; // slots of games that are not released
+    private final byte[] startState = new byte[Checkers.STATE_BYTES]; // new game in the starting position
+    private int freeCount = 0;
+    private int used = 0; // slots that were ever given out
+
+    /**
+     * @param capacity
+     * maximal number of games
+     */
+    public OffHeapSessionStore(int capacity) {
+        if (capacity <= 0 || capacity > Integer.MAX_VALUE / Checkers.STATE_BYTES) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        this.capacity = capacity;
+        arena = ByteBuffer.allocateDirect(capacity * Checkers.STATE_BYTES);
+        views = ThreadLocal.withInitial(arena::duplicate);
+        freeSlots = new int[capacity];
+        inUse = new BitSet(capacity);
+        Checkers start = new Checkers();
+        start.reset();
+        start.writeState(ByteBuffer.wrap(startState));
+    }
+
+    /**
+     * Creates a game in the starting position
+     * @return slot of the game
+     * @throws IllegalStateException
+     * if the store is full
+     */
+    public synchronized int create() {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else if (used < capacity) {
+            slot = used++;
+        } else {
+            throw new IllegalStateException("store is full: " + capacity);
+        }
+        inUse.set(slot);
+        ByteBuffer view = views.get();
+        view.position(slot * Checkers.STATE_BYTES);
+        view.put(startState);
+        return slot;
+    }
+
+    /**
+     * Frees the slot of a finished game
+     * @param slot
+     * slot returned by create
+     * @throws IllegalArgumentException
+     * if the slot is not a game of the store or is already released
+     */
+    public synchronized void release(int slot) {
+        checkInUse(slot);
+        inUse.clear(slot);
+        freeSlots[freeCount++] = slot;
+    }
+
+    private synchronized void checkInUse(int slot) {
+        if (slot < 0 || slot >= capacity || !inUse.get(slot)) {
+            throw new IllegalArgumentException("slot is not in use: " + slot);
+        }
+    }
+
+    /**
+     * Loads a game into the pooled Checkers of the current thread
+     * @param slot
+     * slot of the game
+     * @return instance valid until the next hydrate or CheckersPool.acquire on this thread
+     * @throws IllegalArgumentException
+     * if the slot is not a game of the store or is released
+     */
+    public Checkers hydrate(int slot) {
+        checkInUse(slot);
+        Checkers checkers = CheckersPool.get(); // the whole state is read, no reset needed
+        ByteBuffer view = views.get();
+        view.position(slot * Checkers.STATE_BYTES);
+        checkers.readState(view);
+        checkers.setMoveEvents(null); // rings are attached per game by the caller
+        return checkers;
+    }
+
+    /**
+     * Stores the state of a game into its slot
+     * @param slot
+     * slot of the game
+     * @param checkers
+     * game to store
+     * @throws IllegalArgumentException
+     * if the slot is not a game of the store or is released
+     */
+    public void writeBack(int slot, Checkers checkers) {
+        checkInUse(slot);
+        ByteBuffer view = views.get();
+        view.position(slot * Checkers.STATE_BYTES);
+        checkers.writeState(view);
+    }
+
+    /**
+     * Does the next turn of a stored game, the side to move is taken from the game.
+     * The slot is changed only if the turn is valid.
+     * @param slot
+     * slot of the game
+     * @param turn
+     * turn in format "a1-b2" or "a1:c3:e5", for Kings use Upper letters
+     * @throws BusyCellException
+     * if you try to step on busy square
+     * @throws WhiteCellException
+     * if you try to step on "white" square
+     * @throws InvalidMoveException
+     * if you have to beat enemy, and you do not do it
+     * @throws GeneralErrorException
+     * other exceptions
+     * @throws IllegalArgumentException
+     * if the slot is not a game of the store or is released
+     */
+    public void doTurn(int slot, String turn) throws BusyCellException, WhiteCellException,
+            GeneralErrorException, InvalidMoveException {
+        Checkers checkers = hydrate(slot);
+        checkers.doTurn(turn, checkers.isWhiteToMove());
+        writeBack(slot, checkers);
+    }
+}
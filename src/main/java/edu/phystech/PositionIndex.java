@@ -0,0 +1,253 @@
+package edu.phystech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Memory-mapped index written by PositionIndexWriter,
+ * answers "which games passed through this position".
+ * File layout: header (magic, version, number of blocks, directory offset),
+ * blocks of sorted varint-encoded postings, directory (first hash and offset of every block).
+ * Every posting that starts another position carries its three masks,
+ * so hits of find(Checkers) are checked against the position itself.
+ * The file is mapped in chunks addressed by long offsets, so it may be larger than 2 GB.
+ */
+public final class PositionIndex {
+    static final int MAGIC = 0x43484b49; // "CHKI"
+    static final int VERSION = 2;
+    static final int HEADER_BYTES = 3 * Integer.BYTES + Long.BYTES;
+    static final int DIRECTORY_ENTRY_BYTES = 2 * Long.BYTES;
+    static final int BLOCK_POSTINGS = 128;
+    static final int MAX_VARINT_BYTES = 10;
+    // hash delta, flag of a new position, its masks, game id, ply
+    static final int MAX_POSTING_BYTES = 3 * MAX_VARINT_BYTES + 1 + 3 * Long.BYTES;
+    private static final int CHUNK_SHIFT = 30;
+    static final long CHUNK_BYTES = 1L << CHUNK_SHIFT; // 1 GiB per mapping
+    // a block or a directory entry starting in a chunk ends inside its mapping
+    private static final int CHUNK_OVERLAP = BLOCK_POSTINGS * MAX_POSTING_BYTES + MAX_VARINT_BYTES;
+    private static final int VARINT_BITS = 7;
+    private static final int VARINT_MASK = 0x7f;
+    private static final int VARINT_MORE = 0x80;
+    private static final long MIX1 = 0xff51afd7ed558ccdL;
+    private static final long MIX2 = 0xc4ceb9fe1a85ec53L;
+    private static final int MIX_SHIFT = 33;
+
+    private final MappedByteBuffer[] chunks;
+    private final long chunkBytes;
+    private final int blockCount;
+    private final long directoryOffset;
+
+    /**
+     * Game and ply where a position was met
+     */
+    public static final class Posting {
+        private final int gameId;
+        private final int ply;
+
+        Posting(int gameId, int ply) {
+            this.gameId = gameId;
+            this.ply = ply;
+        }
+
+        /**
+         * @return id of the game in the archive
+         */
+        public int getGameId() {
+            return gameId;
+        }
+
+        /**
+         * @return number of turns done before the position, 0 for the starting one
+         */
+        public int getPly() {
+            return ply;
+        }
+    }
+
+    private PositionIndex(MappedByteBuffer[] chunks, long chunkBytes, int blockCount, long directoryOffset) {
+        this.chunks = chunks;
+        this.chunkBytes = chunkBytes;
+        this.blockCount = blockCount;
+        this.directoryOffset = directoryOffset;
+    }
+
+    /**
+     * Maps the index file
+     * @param file
+     * index file
+     * @return opened index
+     * @throws IOException
+     * if file can not be read or is not an index
+     */
+    public static PositionIndex open(Path file) throws IOException {
+        return open(file, CHUNK_BYTES);
+    }
+
+    /**
+     * Maps the index file in chunks of the given size
+     */
+    static PositionIndex open(Path file, long chunkBytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("not a position index: " + file);
+            }
+            // chunks overlap, so a block never has to be read from two mappings
+            MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((size + chunkBytes - 1) / chunkBytes)];
+            for (int c = 0; c < chunks.length; ++c) {
+                long start = c * chunkBytes;
+                chunks[c] = channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(size - start, chunkBytes + CHUNK_OVERLAP));
+            }
+            if (chunks[0].getInt(0) != MAGIC || chunks[0].getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("not a position index: " + file);
+            }
+            int blockCount = chunks[0].getInt(2 * Integer.BYTES);
+            long directoryOffset = chunks[0].getLong(3 * Integer.BYTES);
+            if (blockCount < 0 || directoryOffset + (long) blockCount * DIRECTORY_ENTRY_BYTES != size) {
+                throw new IOException("truncated position index: " + file);
+            }
+            return new PositionIndex(chunks, chunkBytes, blockCount, directoryOffset);
+        }
+    }
+
+    /**
+     * Finds all games that passed through the position
+     * (set by defaultPlacement, inputPlacement or turns)
+     * @param checkers
+     * position to look for, side to move is not compared
+     * @return postings sorted by game id and ply
+     */
+    public List<Posting> find(Checkers checkers) {
+        return find(hash(checkers), new long[] {checkers.pieceMask(true), checkers.pieceMask(false),
+            checkers.kingMask()});
+    }
+
+    /**
+     * Finds all postings of a position hash.
+     * Different positions may have equal hashes, their postings are all returned,
+     * use find(Checkers) to get the ones of a single position.
+     * @param hash
+     * hash of the position, see hash(Checkers)
+     * @return postings sorted by position, game id and ply
+     */
+    public List<Posting> find(long hash) {
+        return find(hash, null);
+    }
+
+    // masks are white, black and Kings, null to take every position with the hash
+    private List<Posting> find(long hash, long[] masks) {
+        List<Posting> result = new ArrayList<>();
+        // last block starting strictly before hash: equal hashes may begin in it
+        int low = 0;
+        int high = blockCount - 1;
+        int start = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(firstHash(middle), hash) < 0) {
+                start = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        for (int b = start; b < blockCount && Long.compareUnsigned(firstHash(b), hash) <= 0; ++b) {
+            if (!scanBlock(b, hash, masks, result)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    // returns false if a greater hash was met, so next blocks can be skipped
+    private boolean scanBlock(int block, long hash, long[] masks, List<Posting> result) {
+        ByteBuffer data = at(getLong(directoryOffset + (long) block * DIRECTORY_ENTRY_BYTES + Long.BYTES));
+        int count = (int) getVarint(data);
+        long current = firstHash(block);
+        boolean matches = false;
+        int game = 0;
+        for (int i = 0; i < count; ++i) {
+            current += getVarint(data);
+            boolean newPosition = data.get() != 0;
+            if (newPosition) {
+                long white = data.getLong();
+                long black = data.getLong();
+                long kings = data.getLong();
+                matches = masks == null || white == masks[0] && black == masks[1] && kings == masks[2];
+            }
+            int value = (int) getVarint(data);
+            game = newPosition ? value : game + value;
+            int ply = (int) getVarint(data);
+            int order = Long.compareUnsigned(current, hash);
+            if (order > 0) {
+                return false;
+            }
+            if (order == 0 && matches) {
+                result.add(new Posting(game, ply));
+            }
+        }
+        return true;
+    }
+
+    private long firstHash(int block) {
+        return getLong(directoryOffset + (long) block * DIRECTORY_ENTRY_BYTES);
+    }
+
+    private long getLong(long offset) {
+        return chunks[(int) (offset / chunkBytes)].getLong((int) (offset % chunkBytes));
+    }
+
+    // view of the file from the offset, valid at least until the end of the block there
+    private ByteBuffer at(long offset) {
+        ByteBuffer data = chunks[(int) (offset / chunkBytes)].duplicate();
+        data.position((int) (offset % chunkBytes));
+        return data;
+    }
+
+    /**
+     * Hash of the position on board, side to move is not taken into account
+     */
+    static long hash(Checkers checkers) {
+        long hash = mix(checkers.pieceMask(true));
+        hash = mix(hash ^ checkers.pieceMask(false));
+        return mix(hash ^ checkers.kingMask());
+    }
+
+    // finalizer of MurmurHash3
+    private static long mix(long value) {
+        long result = value;
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX1;
+        result ^= result >>> MIX_SHIFT;
+        result *= MIX2;
+        result ^= result >>> MIX_SHIFT;
+        return result;
+    }
+
+    static void putVarint(ByteBuffer buffer, long value) {
+        long rest = value;
+        while ((rest & ~VARINT_MASK) != 0) {
+            buffer.put((byte) (rest & VARINT_MASK | VARINT_MORE));
+            rest >>>= VARINT_BITS;
+        }
+        buffer.put((byte) rest);
+    }
+
+    static long getVarint(ByteBuffer buffer) {
+        long result = 0;
+        int shift = 0;
+        byte next;
+        do {
+            next = buffer.get();
+            result |= (long) (next & VARINT_MASK) << shift;
+            shift += VARINT_BITS;
+        } while ((next & VARINT_MORE) != 0);
+        return result;
+    }
+}
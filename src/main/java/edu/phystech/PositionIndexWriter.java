@@ -0,0 +1,214 @@
+package edu.phystech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds an inverted index "position -> (game id, ply)" over archived games.
+ * Every game is replayed once through doTurn, postings are kept in
+ * primitive arrays and written sorted by position hash in compressed blocks,
+ * masks of every position are stored once per block it appears in.
+ * The index is read by PositionIndex.
+ */
+public final class PositionIndexWriter {
+    private static final int INITIAL_CAPACITY_SHIFT = 10;
+    private static final int INITIAL_CAPACITY = 1 << INITIAL_CAPACITY_SHIFT;
+
+    private long[] hashes = new long[INITIAL_CAPACITY];
+    private long[] whites = new long[INITIAL_CAPACITY];
+    private long[] blacks = new long[INITIAL_CAPACITY];
+    private long[] kings = new long[INITIAL_CAPACITY];
+    private int[] games = new int[INITIAL_CAPACITY];
+    private int[] plies = new int[INITIAL_CAPACITY];
+    private int size = 0;
+
+    /**
+     * Replays a game and adds all its positions, the starting one included (ply 0)
+     * @param gameId
+     * id of the game in the archive
+     * @param start
+     * starting position (defaultPlacement or inputPlacement), is changed by replay
+     * @param turns
+     * turns of the game in the notation of doTurn
+     * @throws BusyCellException
+     * if a turn steps on busy square
+     * @throws WhiteCellException
+     * if a turn steps on "white" square
+     * @throws InvalidMoveException
+     * if a turn does not beat enemy when it has to
+     * @throws GeneralErrorException
+     * other errors in turns
+     */
+    public void addGame(int gameId, Checkers start, List<String> turns) throws BusyCellException,
+            WhiteCellException, GeneralErrorException, InvalidMoveException {
+        add(start, gameId, 0);
+        boolean isWhiteTurn = start.isWhiteToMove();
+        int ply = 0;
+        for (String turn : turns) {
+            start.doTurn(turn, isWhiteTurn);
+            isWhiteTurn = !isWhiteTurn;
+            add(start, gameId, ++ply);
+        }
+    }
+
+    /**
+     * @return number of postings added so far
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Sorts the postings and writes the index
+     * @param file
+     * index file
+     * @throws IOException
+     * if file can not be written
+     */
+    public void write(Path file) throws IOException {
+        sort(0, size - 1);
+        int blockCount = (size + PositionIndex.BLOCK_POSTINGS - 1) / PositionIndex.BLOCK_POSTINGS;
+        long[] firstHashes = new long[blockCount];
+        long[] offsets = new long[blockCount];
+        ByteBuffer block = ByteBuffer.allocate(PositionIndex.BLOCK_POSTINGS * PositionIndex.MAX_POSTING_BYTES
+                + PositionIndex.MAX_VARINT_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = PositionIndex.HEADER_BYTES;
+            for (int b = 0; b < blockCount; ++b) {
+                int from = b * PositionIndex.BLOCK_POSTINGS;
+                int to = Math.min(size, from + PositionIndex.BLOCK_POSTINGS);
+                firstHashes[b] = hashes[from];
+                offsets[b] = position;
+                block.clear();
+                PositionIndex.putVarint(block, to - from);
+                for (int i = from; i < to; ++i) {
+                    PositionIndex.putVarint(block, hashes[i] - (i == from ? hashes[from] : hashes[i - 1]));
+                    boolean newPosition = i == from || comparePosition(i, i - 1) != 0;
+                    block.put((byte) (newPosition ? 1 : 0));
+                    if (newPosition) {
+                        block.putLong(whites[i]);
+                        block.putLong(blacks[i]);
+                        block.putLong(kings[i]);
+                    }
+                    // same position: game ids are sorted too, store their delta
+                    PositionIndex.putVarint(block, newPosition ? games[i] : games[i] - games[i - 1]);
+                    PositionIndex.putVarint(block, plies[i]);
+                }
+                block.flip();
+                position += writeFully(channel, block, position);
+            }
+
+            long directoryOffset = position;
+            ByteBuffer directory = ByteBuffer.allocate(blockCount * PositionIndex.DIRECTORY_ENTRY_BYTES);
+            for (int b = 0; b < blockCount; ++b) {
+                directory.putLong(firstHashes[b]);
+                directory.putLong(offsets[b]);
+            }
+            directory.flip();
+            writeFully(channel, directory, directoryOffset);
+
+            ByteBuffer header = ByteBuffer.allocate(PositionIndex.HEADER_BYTES);
+            header.putInt(PositionIndex.MAGIC);
+            header.putInt(PositionIndex.VERSION);
+            header.putInt(blockCount);
+            header.putLong(directoryOffset);
+            header.flip();
+            writeFully(channel, header, 0);
+        }
+    }
+
+    private void add(Checkers position, int gameId, int ply) {
+        if (size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            whites = Arrays.copyOf(whites, size * 2);
+            blacks = Arrays.copyOf(blacks, size * 2);
+            kings = Arrays.copyOf(kings, size * 2);
+            games = Arrays.copyOf(games, size * 2);
+            plies = Arrays.copyOf(plies, size * 2);
+        }
+        hashes[size] = PositionIndex.hash(position);
+        whites[size] = position.pieceMask(true);
+        blacks[size] = position.pieceMask(false);
+        kings[size] = position.kingMask();
+        games[size] = gameId;
+        plies[size] = ply;
+        ++size;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    // positions with equal hashes are ordered by their masks, so every position is one run
+    private int comparePosition(int i, int j) {
+        int result = Long.compareUnsigned(hashes[i], hashes[j]);
+        if (result == 0) {
+            result = Long.compare(whites[i], whites[j]);
+        }
+        if (result == 0) {
+            result = Long.compare(blacks[i], blacks[j]);
+        }
+        return result == 0 ? Long.compare(kings[i], kings[j]) : result;
+    }
+
+    private int compare(int i, int j) {
+        int result = comparePosition(i, j);
+        if (result == 0) {
+            result = Integer.compare(games[i], games[j]);
+        }
+        return result == 0 ? Integer.compare(plies[i], plies[j]) : result;
+    }
+
+    private void swap(int i, int j) {
+        swap(hashes, i, j);
+        swap(whites, i, j);
+        swap(blacks, i, j);
+        swap(kings, i, j);
+        int game = games[i];
+        games[i] = games[j];
+        games[j] = game;
+        int ply = plies[i];
+        plies[i] = plies[j];
+        plies[j] = ply;
+    }
+
+    private static void swap(long[] array, int i, int j) {
+        long value = array[i];
+        array[i] = array[j];
+        array[j] = value;
+    }
+
+    // quicksort of the parallel arrays by (hash, masks, game, ply)
+    private void sort(int low, int high) {
+        int left = low;
+        int right = high;
+        while (left < right) {
+            swap((left + right) >>> 1, right); // middle element as pivot
+            int store = left;
+            for (int i = left; i < right; ++i) {
+                if (compare(i, right) < 0) {
+                    swap(i, store++);
+                }
+            }
+            swap(store, right);
+            // recurse into the smaller part, loop over the bigger one
+            if (store - left < right - store) {
+                sort(left, store - 1);
+                left = store + 1;
+            } else {
+                sort(store + 1, right);
+                right = store - 1;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package edu.phystech;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Binary checkpoint of all live game sessions.
+ * File layout: magic, version, number of sessions,
+ * then fixed width records (session id + Checkers state).
+ */
+public final class SessionCheckpoint {
+    private static final int MAGIC = 0x43484b50; // "CHKP"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 3 * Integer.BYTES;
+    private static final int RECORD_BYTES = Long.BYTES + Checkers.STATE_BYTES;
+    private static final int BUFFER_SHIFT = 20;
+    private static final int BUFFER_BYTES = 1 << BUFFER_SHIFT; // size of one sequential write, 1 MiB
+
+    private SessionCheckpoint() {
+    }
+
+    /**
+     * Writes all sessions to one file with sequential writes.
+     * The file is written next to the target and then moved,
+     * so an old checkpoint is never left half overwritten.
+     * No turns should be processed while snapshot is running.
+     * @param sessions
+     * live sessions by id
+     * @param file
+     * checkpoint file
+     * @throws IOException
+     * if file can not be written
+     */
+    public static void snapshot(Map<Long, Checkers> sessions, Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+            buffer.putInt(MAGIC);
+            buffer.putInt(VERSION);
+            buffer.putInt(sessions.size());
+            for (Map.Entry<Long, Checkers> session : sessions.entrySet()) {
+                if (buffer.remaining() < RECORD_BYTES) {
+                    flush(channel, buffer);
+                }
+                buffer.putLong(session.getKey());
+                session.getValue().writeState(buffer);
+            }
+            flush(channel, buffer);
+            channel.force(false);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Restores sessions from the checkpoint file through memory-mapping
+     * @param file
+     * checkpoint file
+     * @return restored sessions by id
+     * @throws IOException
+     * if file can not be read or is not a checkpoint
+     */
+    public static Map<Long, Checkers> restore(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_BYTES) {
+                throw new IOException("not a checkpoint file: " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("not a checkpoint file: " + file);
+            }
+            int count = buffer.getInt();
+            if (count < 0 || buffer.remaining() != (long) count * RECORD_BYTES) {
+                throw new IOException("truncated checkpoint file: " + file);
+            }
+            Map<Long, Checkers> sessions = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; ++i) {
+                long id = buffer.getLong();
+                Checkers checkers = new Checkers();
+                checkers.readState(buffer);
+                sessions.put(id, checkers);
+            }
+            return sessions;
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,263 @@
+package edu.phystech;
+
+import java.util.Arrays;
+
+/**
+ * Generates all legal turns (whole capture sequences included)
+ * for a position given by piece masks, same layout as in Checkers.pieceMask.
+ * Rules are the ones of Checkers: men move and capture in all directions,
+ * Kings fly, capture is obligatory, a man that reaches the last row
+ * during a capture continues it as a King, beaten pieces stay on board
+ * until the end of the turn and can not be jumped twice.
+ * Buffers grow when a position has more turns than they hold,
+ * after that generation does not allocate.
+ */
+final class TurnGenerator {
+    static final int INITIAL_TURNS = 512; // grows if a position has more turns
+    // squares in one turn: every hop captures another piece, at most 63 of them
+    static final int MAX_PATH = 64;
+    private static final int BOARD_SIZE = 8;
+    private static final int[] DX = {1, 1, -1, -1};
+    private static final int[] DY = {1, -1, 1, -1};
+
+    private int[] path;
+    private int[] pathLength;
+    private long[] captured;
+    private boolean[] crowned;
+    private boolean[] startsAsKing;
+    private final int[] stack = new int[MAX_PATH];
+    private int count;
+
+    // position of the current generation
+    private long own;
+    private long opponent;
+    private long occupied;
+    private boolean isWhite;
+
+    TurnGenerator() {
+        this(INITIAL_TURNS);
+    }
+
+    /**
+     * @param initialTurns
+     * number of turns the buffers hold before they grow
+     */
+    TurnGenerator(int initialTurns) {
+        path = new int[initialTurns * MAX_PATH];
+        pathLength = new int[initialTurns];
+        captured = new long[initialTurns];
+        crowned = new boolean[initialTurns];
+        startsAsKing = new boolean[initialTurns];
+    }
+
+    /**
+     * Generates turns of one side
+     * @param whiteMask
+     * white checkers
+     * @param blackMask
+     * black checkers
+     * @param kingMask
+     * Kings of both colors
+     * @param isWhiteTurn
+     * which turn it is, black or white
+     * @return number of generated turns
+     */
+    int generate(long whiteMask, long blackMask, long kingMask, boolean isWhiteTurn) {
+        own = isWhiteTurn ? whiteMask : blackMask;
+        opponent = isWhiteTurn ? blackMask : whiteMask;
+        isWhite = isWhiteTurn;
+        count = 0;
+        for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            boolean isKing = (kingMask & 1L << square) != 0;
+            // moving piece leaves its square, beaten pieces stay
+            occupied = (whiteMask | blackMask) & ~(1L << square);
+            stack[0] = square;
+            if (isKing) {
+                kingCaptures(square, 0, 1, true, false);
+            } else {
+                manCaptures(square, 0, 1, false);
+            }
+        }
+        if (count > 0) {
+            return count;
+        }
+        for (long pieces = own; pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            quietMoves(square, (kingMask & 1L << square) != 0);
+        }
+        return count;
+    }
+
+    /**
+     * @return number of turns generated by the last call of generate
+     */
+    int count() {
+        return count;
+    }
+
+    int from(int turn) {
+        return path[turn * MAX_PATH];
+    }
+
+    int to(int turn) {
+        return path[turn * MAX_PATH + pathLength[turn] - 1];
+    }
+
+    int pathLength(int turn) {
+        return pathLength[turn];
+    }
+
+    /**
+     * @return k-th square of the turn, bit index as in Checkers.pieceMask
+     */
+    int pathSquare(int turn, int k) {
+        return path[turn * MAX_PATH + k];
+    }
+
+    /**
+     * @return mask of pieces captured by the turn, 0 for usual move
+     */
+    long captured(int turn) {
+        return captured[turn];
+    }
+
+    /**
+     * @return true if a man becomes King during the turn
+     */
+    boolean crowned(int turn) {
+        return crowned[turn];
+    }
+
+    /**
+     * @return true if the turn is made by a King
+     */
+    boolean startsAsKing(int turn) {
+        return startsAsKing[turn];
+    }
+
+    /**
+     * Turn in the notation accepted by Checkers.doTurn, e.g. "a3-b4", "c3:e5:g3"
+     */
+    String notation(int turn) {
+        StringBuilder result = new StringBuilder();
+        for (int k = 0; k < pathLength[turn]; ++k) {
+            if (k > 0) {
+                result.append(captured[turn] != 0 ? ':' : '-');
+            }
+            int square = pathSquare(turn, k);
+            char letter = (char) ('a' + square / BOARD_SIZE);
+            result.append(startsAsKing[turn] ? Character.toUpperCase(letter) : letter);
+            result.append(square % BOARD_SIZE + 1);
+        }
+        return result.toString();
+    }
+
+    private boolean isLastRow(int y) {
+        return isWhite ? y == BOARD_SIZE - 1 : y == 0;
+    }
+
+    private static boolean onBoard(int x, int y) {
+        return 0 <= x && x < BOARD_SIZE && 0 <= y && y < BOARD_SIZE;
+    }
+
+    private void manCaptures(int square, long beaten, int depth, boolean wasCrowned) {
+        int x = square / BOARD_SIZE;
+        int y = square % BOARD_SIZE;
+        boolean found = false;
+        for (int d = 0; d < DX.length; ++d) {
+            int xto = x + 2 * DX[d];
+            int yto = y + 2 * DY[d];
+            if (!onBoard(xto, yto)) {
+                continue;
+            }
+            long middle = 1L << ((x + DX[d]) * BOARD_SIZE + y + DY[d]);
+            int to = xto * BOARD_SIZE + yto;
+            if ((opponent & middle) == 0 || (beaten & middle) != 0 || (occupied & 1L << to) != 0) {
+                continue;
+            }
+            found = true;
+            stack[depth] = to;
+            if (isLastRow(yto)) {
+                kingCaptures(to, beaten | middle, depth + 1, false, true);
+            } else {
+                manCaptures(to, beaten | middle, depth + 1, wasCrowned);
+            }
+        }
+        if (!found && depth > 1) {
+            record(depth, beaten, wasCrowned, false);
+        }
+    }
+
+    private void kingCaptures(int square, long beaten, int depth, boolean isKing, boolean wasCrowned) {
+        int x = square / BOARD_SIZE;
+        int y = square % BOARD_SIZE;
+        boolean found = false;
+        for (int d = 0; d < DX.length; ++d) {
+            int k = 1;
+            while (onBoard(x + DX[d] * k, y + DY[d] * k)
+                    && (occupied & 1L << ((x + DX[d] * k) * BOARD_SIZE + y + DY[d] * k)) == 0) {
+                ++k;
+            }
+            if (!onBoard(x + DX[d] * k, y + DY[d] * k)) {
+                continue;
+            }
+            long victim = 1L << ((x + DX[d] * k) * BOARD_SIZE + y + DY[d] * k);
+            if ((opponent & victim) == 0 || (beaten & victim) != 0) {
+                continue;
+            }
+            for (int l = k + 1; onBoard(x + DX[d] * l, y + DY[d] * l); ++l) {
+                int to = (x + DX[d] * l) * BOARD_SIZE + y + DY[d] * l;
+                if ((occupied & 1L << to) != 0) {
+                    break;
+                }
+                found = true;
+                stack[depth] = to;
+                kingCaptures(to, beaten | victim, depth + 1, isKing, wasCrowned);
+            }
+        }
+        if (!found && depth > 1) {
+            record(depth, beaten, wasCrowned, isKing);
+        }
+    }
+
+    private void quietMoves(int square, boolean isKing) {
+        int x = square / BOARD_SIZE;
+        int y = square % BOARD_SIZE;
+        stack[0] = square;
+        for (int d = 0; d < DX.length; ++d) {
+            for (int k = 1; onBoard(x + DX[d] * k, y + DY[d] * k); ++k) {
+                int to = (x + DX[d] * k) * BOARD_SIZE + y + DY[d] * k;
+                if (((own | opponent) & 1L << to) != 0) {
+                    break;
+                }
+                stack[1] = to;
+                record(2, 0, !isKing && isLastRow(y + DY[d] * k), isKing);
+                if (!isKing) {
+                    break;
+                }
+            }
+        }
+    }
+
+    private void record(int length, long beaten, boolean wasCrowned, boolean isKing) {
+        if (count == pathLength.length) {
+            grow();
+        }
+        System.arraycopy(stack, 0, path, count * MAX_PATH, length);
+        pathLength[count] = length;
+        captured[count] = beaten;
+        crowned[count] = wasCrowned;
+        startsAsKing[count] = isKing;
+        ++count;
+    }
+
+    private void grow() {
+        int turns = pathLength.length * 2;
+        path = Arrays.copyOf(path, turns * MAX_PATH);
+        pathLength = Arrays.copyOf(pathLength, turns);
+        captured = Arrays.copyOf(captured, turns);
+        crowned = Arrays.copyOf(crowned, turns);
+        startsAsKing = Arrays.copyOf(startsAsKing, turns);
+    }
+}
@@ -0,0 +1,63 @@
+package edu.phystech;
+
+import java.util.Random;
+
+/**
+ * Compares batch evaluation with evaluation of the same positions one at a time.
+ * Masks of both are taken from the board before timing, so only evaluation is measured.
+ * Not a unit test, run with main.
+ */
+public final class BatchEvaluatorBenchmark {
+    private static final int POSITIONS = 1 << 14;
+    private static final int ROUNDS = 200;
+
+    private BatchEvaluatorBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Random random = new Random(1);
+        TurnGenerator generator = new TurnGenerator();
+        long[][] positions = new long[POSITIONS][]; // white, black, Kings
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(POSITIONS);
+        Checkers game = new Checkers();
+        game.defaultPlacement();
+        boolean isWhiteTurn = true;
+        for (int i = 0; i < POSITIONS; ++i) {
+            int count = generator.generate(game.pieceMask(true), game.pieceMask(false), game.kingMask(), isWhiteTurn);
+            if (count == 0 || game.getTurnCount() > 80) {
+                game.reset();
+                isWhiteTurn = true;
+            } else {
+                game.doTurn(generator.notation(random.nextInt(count)), isWhiteTurn);
+                isWhiteTurn = !isWhiteTurn;
+            }
+            positions[i] = new long[] {game.pieceMask(true), game.pieceMask(false), game.kingMask()};
+            batch.add(game);
+        }
+
+        int[] scores = new int[POSITIONS];
+        long checksum = 0;
+        for (int warmup = 0; warmup < 2; ++warmup) {
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; ++round) {
+                for (int i = 0; i < POSITIONS; ++i) {
+                    long[] masks = positions[i];
+                    checksum += BatchEvaluator.evaluate(masks[0], masks[1], masks[2]);
+                }
+            }
+            long single = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; ++round) {
+                BatchEvaluator.evaluate(batch, scores);
+                checksum += scores[round % POSITIONS];
+            }
+            long batched = System.nanoTime() - start;
+
+            double total = (double) POSITIONS * ROUNDS;
+            System.out.printf("one at a time: %.1f M positions/s%n", total * 1e3 / single);
+            System.out.printf("batch:         %.1f M positions/s%n", total * 1e3 / batched);
+        }
+        System.out.println("checksum " + checksum);
+    }
+}
@@ -0,0 +1,53 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+import java.util.Random;
+
+public class BatchEvaluatorTest {
+    @Test
+    void featuresTest() throws Exception {
+        Checkers checkers = new Checkers();
+        checkers.inputPlacement("H8 a1", true);
+        checkers.inputPlacement("h2", false);
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(2);
+        batch.add(checkers);
+        checkers.reset();
+        batch.add(checkers);
+        int[] material = new int[2];
+        int[] mobility = new int[2];
+        int[] advancement = new int[2];
+        BatchEvaluator.features(batch, material, mobility, advancement);
+        Assertions.assertThat(material).containsExactly(BatchEvaluator.KING_VALUE, 0);
+        Assertions.assertThat(mobility).containsExactly(0, 0);
+        Assertions.assertThat(advancement).containsExactly(-6, 0);
+    }
+
+    @Test
+    void batchIsSameAsSingleTest() throws Exception {
+        Random random = new Random(1);
+        TurnGenerator generator = new TurnGenerator();
+        BatchEvaluator.Batch batch = new BatchEvaluator.Batch(100);
+        int[] expected = new int[100];
+        Checkers checkers = new Checkers();
+        checkers.defaultPlacement();
+        boolean isWhiteTurn = true;
+        for (int i = 0; i < 100; ++i) {
+            int count = generator.generate(checkers.pieceMask(true), checkers.pieceMask(false),
+                    checkers.kingMask(), isWhiteTurn);
+            if (count == 0) {
+                checkers.reset();
+                isWhiteTurn = true;
+            } else {
+                checkers.doTurn(generator.notation(random.nextInt(count)), isWhiteTurn);
+                isWhiteTurn = !isWhiteTurn;
+            }
+            batch.add(checkers);
+            expected[i] = BatchEvaluator.evaluate(checkers);
+        }
+        int[] scores = new int[100];
+        BatchEvaluator.evaluate(batch, scores);
+        Assertions.assertThat(scores).isEqualTo(expected);
+    }
+}
@@ -0,0 +1,68 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+public class CaptureTreeTest {
+    @Test
+    void doTurnTest() throws Exception {
+        CaptureTree tree = new CaptureTree(false);
+        { // same result as hop by hop validation
+            Checkers checkers = new Checkers();
+            checkers.defaultPlacement();
+            checkers.doTurn("c3-d4", true, tree);
+            checkers.doTurn("f6-e5", false, tree);
+            checkers.doTurn("d4:f6", true, tree);
+            checkers.doTurn("g7:e5", false, tree);
+            Checkers checkersTrue = new Checkers();
+            checkersTrue.defaultPlacement();
+            checkersTrue.doTurn("c3-d4", true);
+            checkersTrue.doTurn("f6-e5", false);
+            checkersTrue.doTurn("d4:f6", true);
+            checkersTrue.doTurn("g7:e5", false);
+            Assertions.assertThat(checkers.printCheckersString(true)).isEqualTo(checkersTrue.printCheckersString(true));
+            Assertions.assertThat(checkers.printCheckersString(false))
+                    .isEqualTo(checkersTrue.printCheckersString(false));
+        }
+        { // man becomes King in the middle of a capture
+            Checkers checkers = new Checkers();
+            checkers.inputPlacement("d6", true);
+            checkers.inputPlacement("e7 g7", false);
+            checkers.doTurn("d6:f8:h6", true, tree);
+            Assertions.assertThat(checkers.printCheckersString(true)).isEqualTo("H6");
+            Assertions.assertThat(checkers.printCheckersString(false)).isEmpty();
+        }
+        Checkers checkers = new Checkers();
+        checkers.inputPlacement("c3 a1", true);
+        checkers.inputPlacement("d4 f6", false);
+        // capture is not finished
+        Assertions.assertThatExceptionOfType(InvalidMoveException.class)
+                .isThrownBy(() -> checkers.doTurn("c3:e5", true, tree));
+        // capture is obligatory
+        Assertions.assertThatExceptionOfType(InvalidMoveException.class)
+                .isThrownBy(() -> checkers.doTurn("a1-b2", true, tree));
+        // man written as King
+        Assertions.assertThatExceptionOfType(GeneralErrorException.class)
+                .isThrownBy(() -> checkers.doTurn("C3:e5:g7", true, tree));
+        checkers.doTurn("c3:e5:g7", true, tree);
+        Assertions.assertThat(checkers.printCheckersString(true)).isEqualTo("a1 g7");
+        Assertions.assertThat(checkers.printCheckersString(false)).isEmpty();
+    }
+
+    @Test
+    void maximumCaptureTest() throws Exception {
+        Checkers checkers = new Checkers();
+        checkers.inputPlacement("a1 h2", true);
+        checkers.inputPlacement("b2 g3 e5", false);
+        long white = checkers.pieceMask(true);
+        long black = checkers.pieceMask(false);
+        Assertions.assertThat(new CaptureTree(false).build(white, black, 0, true)).isEqualTo(2);
+        Assertions.assertThat(new CaptureTree(true).build(white, black, 0, true)).isEqualTo(1);
+
+        CaptureTree tree = new CaptureTree(true);
+        Assertions.assertThatExceptionOfType(InvalidMoveException.class)
+                .isThrownBy(() -> checkers.doTurn("a1:c3", true, tree));
+        checkers.doTurn("h2:f4:d6", true, tree);
+        Assertions.assertThat(checkers.printCheckersString(false)).isEqualTo("b2");
+    }
+}
@@ -0,0 +1,24 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CheckersPoolTest {
+    @Test
+    void acquireTest() throws Exception {
+        Checkers first = CheckersPool.acquire();
+        first.doTurn("a3-b4", true);
+        Checkers second = CheckersPool.acquire();
+        Assertions.assertThat(second).isSameAs(first);
+        Assertions.assertThat(second.printCheckersString(true)).contains("a3").doesNotContain("b4");
+
+        // other threads get their own instances
+        AtomicReference<Checkers> other = new AtomicReference<>();
+        Thread thread = new Thread(() -> other.set(CheckersPool.acquire()));
+        thread.start();
+        thread.join();
+        Assertions.assertThat(other.get()).isNotNull().isNotSameAs(first);
+    }
+}
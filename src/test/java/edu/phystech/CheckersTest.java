@@ -155,4 +155,28 @@ public class CheckersTest {
                     checkers.validMove(7, 5, 6, 4, false, false, false);
                 });
     }
+    @Test
+    void resetTest() throws Exception {
+        Checkers checkers = new Checkers();
+        checkers.defaultPlacement();
+        String whiteStart = checkers.printCheckersString(true);
+        String blackStart = checkers.printCheckersString(false);
+        checkers.doTurn("c3-d4", true);
+        checkers.doTurn("f6-e5", false);
+        checkers.doTurn("d4:f6", true);
+        checkers.reset();
+        Assertions.assertThat(checkers.printCheckersString(true)).isEqualTo(whiteStart);
+        Assertions.assertThat(checkers.printCheckersString(false)).isEqualTo(blackStart);
+        Assertions.assertThat(checkers.isWhiteToMove()).isTrue();
+        Assertions.assertThat(checkers.getTurnCount()).isZero();
+        Assertions.assertThatNoException().isThrownBy(() -> checkers.doTurn("c3-d4", true));
+
+        Checkers kings = new Checkers();
+        kings.inputPlacement("H8", true);
+        kings.inputPlacement("c3 e5", false);
+        checkers.reset(kings.pieceMask(true), kings.pieceMask(false), kings.kingMask(), true);
+        checkers.doTurn("H8:D4", true);
+        Assertions.assertThat(checkers.printCheckersString(true)).isEqualTo("D4");
+        Assertions.assertThat(checkers.printCheckersString(false)).isEqualTo("c3");
+    }
 }
@@ -0,0 +1,45 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+public class MonteCarloSearchTest {
+    @Test
+    void searchTest() throws Exception {
+        Checkers checkers = new Checkers();
+        checkers.defaultPlacement();
+        MonteCarloSearch search = new MonteCarloSearch(checkers, 2);
+        MonteCarloSearch.Result result = search.search(200);
+        Assertions.assertThat(result.getPlayouts()).isPositive();
+        Assertions.assertThat(result.getPlayoutsPerSecond()).isPositive();
+        Assertions.assertThatNoException().isThrownBy(() -> {
+            checkers.parser.parse(result.getTurn());
+            checkers.doTurn(true);
+        });
+
+        // tree is reused for the next turn
+        search.advance(checkers);
+        MonteCarloSearch.Result next = search.search(100);
+        Assertions.assertThatNoException().isThrownBy(() -> {
+            checkers.parser.parse(next.getTurn());
+            checkers.doTurn(false);
+        });
+    }
+
+    @Test
+    void forcedTurnTest() throws Exception {
+        Checkers capture = new Checkers();
+        capture.inputPlacement("a1 e1", true);
+        capture.inputPlacement("b2 h8 g7", false);
+        Assertions.assertThat(new MonteCarloSearch(capture, 1).search(100).getTurn()).isEqualTo("a1:c3");
+
+        // white has no turns
+        Checkers blocked = new Checkers();
+        blocked.inputPlacement("a1", true);
+        blocked.inputPlacement("b2 c3", false);
+        MonteCarloSearch.Result result = new MonteCarloSearch(blocked, 1).search(10);
+        Assertions.assertThat(result.getTurn()).isNull();
+        // terminal root, no random playouts were done
+        Assertions.assertThat(result.getPlayouts()).isZero();
+    }
+}
@@ -0,0 +1,83 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+public class MoveEventRingTest {
+    @Test
+    void publishTest() throws Exception {
+        MoveEventRing ring = new MoveEventRing(4);
+        MoveEventRing.Cursor first = ring.newCursor();
+        Checkers checkers = new Checkers();
+        checkers.inputPlacement("d6", true);
+        checkers.inputPlacement("e7 g7 a3", false);
+        checkers.setMoveEvents(ring);
+        checkers.doTurn("d6:f8:h6", true);
+        MoveEventRing.Cursor second = ring.newCursor();
+        checkers.doTurn("a3-b2", false);
+
+        MoveEventRing.MoveEvent event = new MoveEventRing.MoveEvent();
+        Assertions.assertThat(first.poll(event)).isTrue();
+        Assertions.assertThat(event.getTurnNumber()).isEqualTo(1);
+        Assertions.assertThat(event.isWhite()).isTrue();
+        Assertions.assertThat(event.isCrowned()).isTrue();
+        Assertions.assertThat(event.isTruncated()).isFalse();
+        Assertions.assertThat(event.getHopCount()).isEqualTo(3);
+        Assertions.assertThat(event.getHop(0)).isEqualTo(3 * 8 + 5); // d6
+        Assertions.assertThat(event.getHop(2)).isEqualTo(7 * 8 + 5); // h6
+        Assertions.assertThat(event.getCaptured()).isEqualTo(1L << (4 * 8 + 6) | 1L << (6 * 8 + 6)); // e7 g7
+        Assertions.assertThat(first.poll(event)).isTrue();
+        Assertions.assertThat(event.isWhite()).isFalse();
+        Assertions.assertThat(event.getCaptured()).isZero();
+        Assertions.assertThat(first.poll(event)).isFalse();
+
+        Assertions.assertThat(second.poll(event)).isTrue();
+        Assertions.assertThat(event.getTurnNumber()).isEqualTo(2);
+        Assertions.assertThat(second.poll(event)).isFalse();
+    }
+
+    @Test
+    void slowCursorTest() throws Exception {
+        MoveEventRing ring = new MoveEventRing(4);
+        MoveEventRing.Cursor cursor = ring.newCursor();
+        Checkers checkers = new Checkers();
+        checkers.inputPlacement("A1", true);
+        checkers.inputPlacement("h6", false);
+        checkers.setMoveEvents(ring);
+        for (int i = 0; i < 10; ++i) {
+            checkers.doTurn(i % 2 == 0 ? "A1-B2" : "B2-A1", true);
+        }
+        // writer was not blocked, the oldest events are lost
+        MoveEventRing.MoveEvent event = new MoveEventRing.MoveEvent();
+        Assertions.assertThat(cursor.poll(event)).isTrue();
+        Assertions.assertThat(event.getTurnNumber()).isEqualTo(7);
+        Assertions.assertThat(cursor.getMissed()).isEqualTo(6);
+    }
+
+    @Test
+    void pooledTest() throws Exception {
+        MoveEventRing ring = new MoveEventRing(4);
+        MoveEventRing.Cursor cursor = ring.newCursor();
+        Checkers checkers = CheckersPool.acquire();
+        checkers.setMoveEvents(ring);
+        checkers.doTurn("c3-d4", true);
+        // next game on this thread does not publish into the ring of the previous one
+        CheckersPool.acquire().doTurn("a3-b4", true);
+        MoveEventRing.MoveEvent event = new MoveEventRing.MoveEvent();
+        Assertions.assertThat(cursor.poll(event)).isTrue();
+        Assertions.assertThat(event.getHop(0)).isEqualTo(2 * 8 + 2); // c3
+        Assertions.assertThat(cursor.poll(event)).isFalse();
+    }
+
+    @Test
+    void truncatedTest() {
+        MoveEventRing ring = new MoveEventRing(4);
+        MoveEventRing.Cursor cursor = ring.newCursor();
+        int[] hops = new int[MoveEventRing.MAX_HOPS + 1];
+        ring.publish(true, hops, hops.length, 0, false, 1);
+        MoveEventRing.MoveEvent event = new MoveEventRing.MoveEvent();
+        Assertions.assertThat(cursor.poll(event)).isTrue();
+        Assertions.assertThat(event.isTruncated()).isTrue();
+        Assertions.assertThat(event.getHopCount()).isEqualTo(MoveEventRing.MAX_HOPS);
+    }
+}
@@ -0,0 +1,62 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+public class OffHeapSessionStoreTest {
+    @Test
+    void doTurnTest() throws Exception {
+        OffHeapSessionStore store = new OffHeapSessionStore(1000);
+        for (int i = 0; i < 1000; i++) {
+            Assertions.assertThat(store.create()).isEqualTo(i);
+        }
+        Assertions.assertThatExceptionOfType(IllegalStateException.class).isThrownBy(store::create);
+
+        store.doTurn(0, "a3-b4");
+        store.doTurn(0, "b6-a5");
+        store.doTurn(1, "c3-d4");
+        Checkers checkersTrue = new Checkers();
+        checkersTrue.defaultPlacement();
+        checkersTrue.doTurn("a3-b4", true);
+        checkersTrue.doTurn("b6-a5", false);
+
+        Checkers first = store.hydrate(0);
+        Assertions.assertThat(first.printCheckersString(true)).isEqualTo(checkersTrue.printCheckersString(true));
+        Assertions.assertThat(first.printCheckersString(false)).isEqualTo(checkersTrue.printCheckersString(false));
+        Assertions.assertThat(first.getTurnCount()).isEqualTo(2);
+        Assertions.assertThat(first.isWhiteToMove()).isTrue();
+        Checkers second = store.hydrate(1);
+        Assertions.assertThat(second.getTurnCount()).isEqualTo(1);
+        Assertions.assertThat(second.isWhiteToMove()).isFalse();
+
+        // invalid turn does not change the stored game
+        Assertions.assertThatExceptionOfType(GeneralErrorException.class)
+                .isThrownBy(() -> store.doTurn(1, "a3-c5"));
+        Assertions.assertThat(store.hydrate(1).printCheckersString(true)).contains("d4");
+
+        // freed slot is reused for a new game
+        store.release(1);
+        Assertions.assertThat(store.create()).isEqualTo(1);
+        Assertions.assertThat(store.hydrate(1).getTurnCount()).isZero();
+    }
+
+    @Test
+    void releaseTest() throws Exception {
+        OffHeapSessionStore store = new OffHeapSessionStore(4);
+        int slot = store.create();
+        store.release(slot);
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> store.release(slot));
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> store.release(1));
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> store.release(-1));
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> store.release(4));
+        // finished game can not be read or changed
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class).isThrownBy(() -> store.hydrate(slot));
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> store.doTurn(slot, "a3-b4"));
+        Assertions.assertThatExceptionOfType(IllegalArgumentException.class)
+                .isThrownBy(() -> store.writeBack(slot, new Checkers()));
+        // the free list holds the slot once
+        Assertions.assertThat(store.create()).isEqualTo(slot);
+        Assertions.assertThat(store.create()).isNotEqualTo(slot);
+    }
+}
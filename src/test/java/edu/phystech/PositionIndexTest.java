@@ -0,0 +1,81 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.assertj.core.api.Assertions;
+
+import java.nio.file.Path;
+import java.util.List;
+
+public class PositionIndexTest {
+    @Test
+    void findTest(@TempDir Path dir) throws Exception {
+        PositionIndexWriter writer = new PositionIndexWriter();
+        for (int game = 0; game < 300; game++) {
+            Checkers checkers = new Checkers();
+            checkers.defaultPlacement();
+            if (game % 3 == 0) {
+                writer.addGame(game, checkers, List.of("a3-b4", "b6-a5", "g3-h4", "h6-g5"));
+            } else {
+                writer.addGame(game, checkers, List.of("c3-d4", "f6-e5"));
+            }
+        }
+        Checkers placed = new Checkers();
+        placed.inputPlacement("H8", true);
+        placed.inputPlacement("c3 e5", false);
+        writer.addGame(1000, placed, List.of("H8-D4"));
+        Assertions.assertThat(writer.size()).isEqualTo(100 * 5 + 200 * 3 + 2);
+
+        Path file = dir.resolve("positions.idx");
+        writer.write(file);
+        PositionIndex index = PositionIndex.open(file);
+
+        Checkers start = new Checkers();
+        start.defaultPlacement();
+        Assertions.assertThat(index.find(start)).hasSize(300);
+
+        // position entered through inputPlacement
+        Checkers query = new Checkers();
+        query.inputPlacement("a1 b2 b4 c1 c3 d2 e1 e3 f2 g1 h2 h4", true);
+        query.inputPlacement("a5 a7 b8 c7 d6 d8 e7 f6 f8 g5 g7 h8", false);
+        List<PositionIndex.Posting> postings = index.find(query);
+        Assertions.assertThat(postings).hasSize(100);
+        Assertions.assertThat(postings.get(0).getGameId()).isEqualTo(0);
+        Assertions.assertThat(postings.get(0).getPly()).isEqualTo(4);
+        Assertions.assertThat(postings.get(99).getGameId()).isEqualTo(297);
+
+        Checkers king = new Checkers();
+        king.inputPlacement("D4", true);
+        king.inputPlacement("c3", false); // e5 is beaten
+        Assertions.assertThat(index.find(king)).hasSize(1);
+        Assertions.assertThat(index.find(king).get(0).getGameId()).isEqualTo(1000);
+
+        Checkers absent = new Checkers();
+        absent.inputPlacement("a1", true);
+        Assertions.assertThat(index.find(absent)).isEmpty();
+    }
+
+    @Test
+    void chunkTest(@TempDir Path dir) throws Exception {
+        PositionIndexWriter writer = new PositionIndexWriter();
+        for (int game = 0; game < 500; game++) {
+            Checkers checkers = new Checkers();
+            checkers.defaultPlacement();
+            writer.addGame(game, checkers, game % 2 == 0 ? List.of("a3-b4", "b6-a5") : List.of("c3-d4"));
+        }
+        Path file = dir.resolve("positions.idx");
+        writer.write(file);
+        // blocks and directory entries cross chunk borders
+        PositionIndex index = PositionIndex.open(file, 100);
+
+        Checkers start = new Checkers();
+        start.defaultPlacement();
+        Assertions.assertThat(index.find(start)).hasSize(500);
+        Assertions.assertThat(index.find(PositionIndex.hash(start))).hasSize(500);
+        start.doTurn("c3-d4", true);
+        List<PositionIndex.Posting> postings = index.find(start);
+        Assertions.assertThat(postings).hasSize(250);
+        Assertions.assertThat(postings.get(249).getGameId()).isEqualTo(499);
+        Assertions.assertThat(postings.get(249).getPly()).isEqualTo(1);
+    }
+}
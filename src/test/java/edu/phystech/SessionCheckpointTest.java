@@ -0,0 +1,50 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.assertj.core.api.Assertions;
+
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+public class SessionCheckpointTest {
+    @Test
+    void snapshotRestoreTest(@TempDir Path dir) throws Exception {
+        Map<Long, Checkers> sessions = new HashMap<>();
+        for (long id = 0; id < 100; id++) {
+            Checkers checkers = new Checkers();
+            checkers.defaultPlacement();
+            if (id % 2 == 1) {
+                checkers.parser.parse("a3-b4");
+                checkers.doTurn(true);
+            }
+            sessions.put(id, checkers);
+        }
+        Checkers kings = new Checkers();
+        kings.inputPlacement("H8 c3", true);
+        kings.inputPlacement("E5", false);
+        sessions.put(1000L, kings);
+
+        Path file = dir.resolve("sessions.bin");
+        SessionCheckpoint.snapshot(sessions, file);
+        Map<Long, Checkers> restored = SessionCheckpoint.restore(file);
+
+        Assertions.assertThat(restored).hasSameSizeAs(sessions);
+        for (Map.Entry<Long, Checkers> session : sessions.entrySet()) {
+            Checkers expected = session.getValue();
+            Checkers actual = restored.get(session.getKey());
+            Assertions.assertThat(actual.printCheckersString(true)).isEqualTo(expected.printCheckersString(true));
+            Assertions.assertThat(actual.printCheckersString(false)).isEqualTo(expected.printCheckersString(false));
+            Assertions.assertThat(actual.isWhiteToMove()).isEqualTo(expected.isWhiteToMove());
+            Assertions.assertThat(actual.getTurnCount()).isEqualTo(expected.getTurnCount());
+        }
+
+        // restored game goes on
+        Checkers game = restored.get(1L);
+        game.parser.parse("b6-a5");
+        game.doTurn(false);
+        Assertions.assertThat(game.printCheckersString(false)).contains("a5");
+        Assertions.assertThat(game.getTurnCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,70 @@
+package edu.phystech;
+
+import org.junit.jupiter.api.Test;
+import org.assertj.core.api.Assertions;
+
+public class TurnGeneratorTest {
+    private static int generate(Checkers checkers, boolean isWhiteTurn, TurnGenerator generator) {
+        return generator.generate(checkers.pieceMask(true), checkers.pieceMask(false), checkers.kingMask(),
+                isWhiteTurn);
+    }
+
+    @Test
+    void generateTest() throws Exception {
+        TurnGenerator generator = new TurnGenerator();
+        { // starting position
+            Checkers checkers = new Checkers();
+            checkers.defaultPlacement();
+            Assertions.assertThat(generate(checkers, true, generator)).isEqualTo(7);
+            Assertions.assertThat(generate(checkers, false, generator)).isEqualTo(7);
+        }
+        { // capture is obligatory and goes on till the end
+            Checkers checkers = new Checkers();
+            checkers.inputPlacement("c3 a1", true);
+            checkers.inputPlacement("d4 f6", false);
+            Assertions.assertThat(generate(checkers, true, generator)).isEqualTo(1);
+            Assertions.assertThat(generator.notation(0)).isEqualTo("c3:e5:g7");
+            Assertions.assertThat(Long.bitCount(generator.captured(0))).isEqualTo(2);
+        }
+        { // man becomes King during capture and goes on as a King
+            Checkers checkers = new Checkers();
+            checkers.inputPlacement("d6", true);
+            checkers.inputPlacement("e7 g7", false);
+            Assertions.assertThat(generate(checkers, true, generator)).isEqualTo(1);
+            Assertions.assertThat(generator.notation(0)).isEqualTo("d6:f8:h6");
+            Assertions.assertThat(generator.crowned(0)).isTrue();
+        }
+    }
+
+    @Test
+    void growTest() throws Exception {
+        // buffers grow instead of dropping turns
+        TurnGenerator generator = new TurnGenerator(1);
+        Checkers checkers = new Checkers();
+        checkers.defaultPlacement();
+        Assertions.assertThat(generate(checkers, true, generator)).isEqualTo(7);
+        Checkers kings = new Checkers();
+        kings.inputPlacement("A1 H2", true);
+        kings.inputPlacement("c3 e5 g3", false);
+        Assertions.assertThat(generate(kings, true, generator))
+                .isEqualTo(generate(kings, true, new TurnGenerator()));
+    }
+
+    @Test
+    void turnsAreAcceptedTest() throws Exception {
+        TurnGenerator generator = new TurnGenerator();
+        Checkers checkers = new Checkers();
+        checkers.defaultPlacement();
+        boolean isWhiteTurn = true;
+        for (int ply = 0; ply < 100 && generate(checkers, isWhiteTurn, generator) > 0; ++ply) {
+            int turn = ply % generator.count();
+            long[] masks = {checkers.pieceMask(true), checkers.pieceMask(false), checkers.kingMask()};
+            MonteCarloSearch.apply(generator, turn, masks, isWhiteTurn);
+            checkers.parser.parse(generator.notation(turn));
+            checkers.doTurn(isWhiteTurn);
+            Assertions.assertThat(new long[] {checkers.pieceMask(true), checkers.pieceMask(false),
+                checkers.kingMask()}).isEqualTo(masks);
+            isWhiteTurn = !isWhiteTurn;
+        }
+    }
+}